@@ -0,0 +1,106 @@
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ForkJoinPool;
+
+public class CompressedForkJoinSum extends RecursiveTask<Long> {
+   private final CompressedIntColumn column;
+   private final int start, end;
+   private final boolean useHeaders;
+   private static final int THRESHOLD = 10_000_000;  // Threshold value for recursive task splitting
+
+   /**
+    * A constructor that creates a new `CompressedForkJoinSum` object.
+    *
+    * @param column     the compressed column to be processed
+    * @param start      the starting index of the column
+    * @param end        the ending index of the column
+    * @param useHeaders whether whole blocks are summed from their headers instead of being decoded
+    */
+   public CompressedForkJoinSum(CompressedIntColumn column, int start, int end, boolean useHeaders) {
+      this.column = column;
+      this.start = start;
+      this.end = end;
+      this.useHeaders = useHeaders;
+   }
+
+   /**
+    * This method calculates the sum of the column elements using the Fork/Join framework in the same way as
+    * {@link ForkJoinSum#compute()}, but over a {@link CompressedIntColumn} instead of a plain array.
+    * If the range is small enough, it is summed directly by the fused decode-and-sum kernels of the column.
+    * Otherwise the range is split in two halves at a block boundary, so no block is decoded by both subtasks.
+    *
+    * @return the sum of the column elements
+    */
+   @Override
+   protected Long compute() {
+      if (end - start <= THRESHOLD) {
+         // Direct computation if the size of the task is small enough
+         return useHeaders ? column.sum(start, end) : column.decodeSum(start, end);
+      }
+      else {
+         // Divide the task into two smaller tasks, aligned to a block boundary, and execute them in parallel
+         int middle = (start + (end - start) / 2) / CompressedIntColumn.BLOCK_SIZE * CompressedIntColumn.BLOCK_SIZE;
+         if (middle <= start) {
+            middle = start + (end - start) / 2;
+         }
+         CompressedForkJoinSum leftTask = new CompressedForkJoinSum(column, start, middle, useHeaders);
+         CompressedForkJoinSum rightTask = new CompressedForkJoinSum(column, middle, end, useHeaders);
+         leftTask.fork(); // execute the left task in parallel
+         return rightTask.compute() + leftTask.join(); // wait for the left task to finish and add the results
+      }
+   }
+
+   /**
+    * A main method that compresses a large array into a {@link CompressedIntColumn} and then calculates the sum of
+    * its elements using a {@link ForkJoinPool}, once decoding every block and once using the block headers.
+    * The code creates a large array and initializes it with values from 0 to 1 billion, like {@link ForkJoinSum}.
+    * The array is encoded once, outside the measured time, and the compression ratio is printed.
+    * The code measures the execution time using `System.nanoTime()` and prints the total sum and execution time.
+    * This process is repeated 20 times, and the average execution time is calculated and printed at the end.
+    *
+    * @param args the command line arguments
+    */
+   public static void main(String[] args) {
+      int[] array = new int[1_000_000_000];
+
+      // Initialize the array with values from 0 to 1 billion
+      for (int i = 0; i < array.length; i++) {
+         array[i] = i;
+      }
+
+      // Compress the array and drop the original
+      CompressedIntColumn column = CompressedIntColumn.encode(array);
+      long rawSize = (long) array.length * Integer.BYTES;
+      array = null;
+      System.out.printf("Compressed %d MB into %d KB%n", rawSize / 1_000_000, column.sizeInBytes() / 1_000);
+
+      long averageDecodeTime = 0;
+      long averageHeaderTime = 0;
+      try (ForkJoinPool pool = new ForkJoinPool()) {
+         for (int k = 0; k < 20; k++) {
+            // Sum by decoding every block
+            long startTime = System.nanoTime();
+            long decodedSum = pool.invoke(new CompressedForkJoinSum(column, 0, column.length(), false));
+            long decodeDuration = (System.nanoTime() - startTime) / 1_000_000;
+
+            // Sum using the block headers
+            startTime = System.nanoTime();
+            long headerSum = pool.invoke(new CompressedForkJoinSum(column, 0, column.length(), true));
+            long headerDuration = (System.nanoTime() - startTime) / 1_000_000;
+
+            // Print the total sums and execution times
+            System.out.println("Total sum: " + decodedSum + " / " + headerSum);
+            System.out.println("Execution time with decoding: " + decodeDuration + " ms");
+            System.out.println("Execution time with block headers: " + headerDuration + " ms");
+
+            // Update the average time
+            if (k > 4) {
+               averageDecodeTime += decodeDuration;
+               averageHeaderTime += headerDuration;
+            }
+         }
+      }
+      // Print the average execution time
+      System.out.printf("Average time with decoding: %d ms%n", averageDecodeTime / 15);
+      System.out.printf("Average time with block headers: %d ms", averageHeaderTime / 15);
+   }
+}
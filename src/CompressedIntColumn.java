@@ -0,0 +1,400 @@
+/**
+ * Compressed storage for a column of {@code int} values.
+ * The values are split into fixed-size blocks of {@link #BLOCK_SIZE} elements.
+ * Every block is encoded on its own, either with frame-of-reference bit-packing (each value is stored as its offset
+ * from the block minimum using as few bits as the block range needs) or, for non-decreasing blocks, with delta encoding
+ * (each value is stored as the difference to its predecessor, again relative to the smallest difference in the block).
+ * The encoding that needs fewer bits wins.
+ * <p>
+ * Each block keeps a small header with its minimum, maximum and sum.
+ * A sum over whole blocks is therefore read straight from the headers without decoding anything,
+ * and only the partial blocks at the edges of a range are decoded.
+ * Blocks whose values are constant or form an arithmetic progression (like the 0..10^9 ramp used in {@link SequentialSum})
+ * need zero bits per value and are summed in closed form.
+ */
+public class CompressedIntColumn {
+   public static final int BLOCK_SIZE = 1024;  // Number of values per block
+
+   private static final byte FRAME_OF_REFERENCE = 0;
+   private static final byte DELTA = 1;
+
+   private final int length;
+   private final long[] words;        // Bit-packed payload of all blocks
+   private final int[] wordOffsets;   // Index of the first payload word of each block
+   private final byte[] encodings;    // FRAME_OF_REFERENCE or DELTA
+   private final byte[] bitWidths;    // Bits per packed value, 0..32
+   private final int[] mins;          // Block minimum (also the first value of a DELTA block)
+   private final int[] maxs;          // Block maximum
+   private final long[] sums;         // Block sum
+   private final long[] deltaBases;   // Smallest difference between neighbours of a DELTA block
+
+   private CompressedIntColumn(int length, long[] words, int[] wordOffsets, byte[] encodings, byte[] bitWidths,
+                               int[] mins, int[] maxs, long[] sums, long[] deltaBases) {
+      this.length = length;
+      this.words = words;
+      this.wordOffsets = wordOffsets;
+      this.encodings = encodings;
+      this.bitWidths = bitWidths;
+      this.mins = mins;
+      this.maxs = maxs;
+      this.sums = sums;
+      this.deltaBases = deltaBases;
+   }
+
+   /**
+    * Encodes the given values into a new compressed column.
+    * The method makes two passes: the first one collects the block headers and picks the encoding of every block,
+    * the second one packs the values into a single `long[]` payload.
+    *
+    * @param values the values to be encoded
+    *
+    * @return the compressed column
+    */
+   public static CompressedIntColumn encode(int[] values) {
+      int blockCount = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      int[] wordOffsets = new int[blockCount + 1];
+      byte[] encodings = new byte[blockCount];
+      byte[] bitWidths = new byte[blockCount];
+      int[] mins = new int[blockCount];
+      int[] maxs = new int[blockCount];
+      long[] sums = new long[blockCount];
+      long[] deltaBases = new long[blockCount];
+
+      // First pass: block headers and encoding choice
+      long totalWords = 0;
+      for (int b = 0; b < blockCount; b++) {
+         int start = b * BLOCK_SIZE;
+         int end = Math.min(start + BLOCK_SIZE, values.length);
+         int min = values[start], max = values[start];
+         long sum = 0;
+         boolean sorted = true;
+         long minDelta = Long.MAX_VALUE, maxDelta = 0;
+         for (int i = start; i < end; i++) {
+            int v = values[i];
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+            sum += v;
+            if (i > start) {
+               long delta = (long) v - values[i - 1];
+               if (delta < 0) {
+                  sorted = false;
+               }
+               minDelta = Math.min(minDelta, delta);
+               maxDelta = Math.max(maxDelta, delta);
+            }
+         }
+
+         int width = bitsFor((long) max - min);
+         encodings[b] = FRAME_OF_REFERENCE;
+         if (sorted && end - start > 1) {
+            int deltaWidth = bitsFor(maxDelta - minDelta);
+            if (deltaWidth < width) {
+               encodings[b] = DELTA;
+               deltaBases[b] = minDelta;
+               width = deltaWidth;
+            }
+         }
+         bitWidths[b] = (byte) width;
+         mins[b] = min;
+         maxs[b] = max;
+         sums[b] = sum;
+         wordOffsets[b] = (int) totalWords;
+         totalWords += ((long) (end - start) * width + 63) >>> 6;
+      }
+      if (totalWords > Integer.MAX_VALUE) {
+         throw new IllegalArgumentException("Column is too large to be encoded: " + values.length + " values");
+      }
+      wordOffsets[blockCount] = (int) totalWords;
+
+      // Second pass: bit-pack the payload
+      long[] words = new long[(int) totalWords];
+      for (int b = 0; b < blockCount; b++) {
+         int width = bitWidths[b];
+         if (width == 0) {
+            continue;
+         }
+         int start = b * BLOCK_SIZE;
+         int end = Math.min(start + BLOCK_SIZE, values.length);
+         long bitPosition = (long) wordOffsets[b] << 6;
+         for (int i = start; i < end; i++) {
+            long packed = encodings[b] == DELTA
+                  ? (i == start ? 0 : (long) values[i] - values[i - 1] - deltaBases[b])
+                  : (long) values[i] - mins[b];
+            int word = (int) (bitPosition >>> 6);
+            int shift = (int) (bitPosition & 63);
+            words[word] |= packed << shift;
+            if (shift + width > 64) {
+               words[word + 1] |= packed >>> (64 - shift);
+            }
+            bitPosition += width;
+         }
+      }
+
+      return new CompressedIntColumn(values.length, words, wordOffsets, encodings, bitWidths, mins, maxs, sums, deltaBases);
+   }
+
+   /**
+    * Returns the number of bits needed to store values from 0 to {@code range} inclusive.
+    *
+    * @param range the largest value to be stored
+    *
+    * @return the number of bits, 0 if the range is empty
+    */
+   private static int bitsFor(long range) {
+      return 64 - Long.numberOfLeadingZeros(range);
+   }
+
+   /**
+    * @return the number of values in the column
+    */
+   public int length() {
+      return length;
+   }
+
+   /**
+    * @return the number of blocks in the column
+    */
+   public int blockCount() {
+      return encodings.length;
+   }
+
+   /**
+    * @return the approximate size of the encoded column in bytes, payload and headers included
+    */
+   public long sizeInBytes() {
+      return (long) words.length * Long.BYTES
+            + (long) blockCount() * (Integer.BYTES * 3 + Long.BYTES * 2 + 2)
+            + Integer.BYTES;
+   }
+
+   /**
+    * @param block the block index
+    *
+    * @return the smallest value of the block
+    */
+   public int blockMin(int block) {
+      return mins[block];
+   }
+
+   /**
+    * @param block the block index
+    *
+    * @return the largest value of the block
+    */
+   public int blockMax(int block) {
+      return maxs[block];
+   }
+
+   /**
+    * @param block the block index
+    *
+    * @return the sum of the values of the block
+    */
+   public long blockSum(int block) {
+      return sums[block];
+   }
+
+   /**
+    * @return the sum of all values in the column, read from the block headers
+    */
+   public long sum() {
+      return sum(0, length);
+   }
+
+   /**
+    * Calculates the sum of the values with indices from {@code from} (inclusive) to {@code to} (exclusive).
+    * Blocks that are completely covered by the range are taken from the block headers,
+    * only the partial blocks at both ends of the range are decoded.
+    *
+    * @param from the first index of the range
+    * @param to   the index after the last one of the range
+    *
+    * @return the sum of the values in the range
+    */
+   public long sum(int from, int to) {
+      checkRange(from, to);
+      if (from == to) {
+         return 0;
+      }
+      int firstBlock = from / BLOCK_SIZE;
+      int lastBlock = (to - 1) / BLOCK_SIZE;
+      if (firstBlock == lastBlock) {
+         return sumBlock(firstBlock, from - firstBlock * BLOCK_SIZE, to - firstBlock * BLOCK_SIZE);
+      }
+
+      long sum = sumBlock(firstBlock, from - firstBlock * BLOCK_SIZE, blockLength(firstBlock));
+      for (int b = firstBlock + 1; b < lastBlock; b++) {
+         sum += sums[b];
+      }
+      return sum + sumBlock(lastBlock, 0, to - lastBlock * BLOCK_SIZE);
+   }
+
+   /**
+    * Calculates the same sum as {@link #sum(int, int)}, but decodes every block instead of using the block headers.
+    * This measures the throughput of the decode-and-sum kernels themselves.
+    *
+    * @param from the first index of the range
+    * @param to   the index after the last one of the range
+    *
+    * @return the sum of the values in the range
+    */
+   public long decodeSum(int from, int to) {
+      checkRange(from, to);
+      long sum = 0;
+      while (from < to) {
+         int block = from / BLOCK_SIZE;
+         int blockStart = block * BLOCK_SIZE;
+         int blockEnd = Math.min(to - blockStart, blockLength(block));
+         sum += decodeSumBlock(block, from - blockStart, blockEnd);
+         from = blockStart + blockEnd;
+      }
+      return sum;
+   }
+
+   /**
+    * Returns the value at the given index.
+    *
+    * @param index the index of the value
+    *
+    * @return the decoded value
+    */
+   public int get(int index) {
+      checkRange(index, index + 1);
+      int block = index / BLOCK_SIZE;
+      int offset = index - block * BLOCK_SIZE;
+      int width = bitWidths[block];
+      long bitPosition = (long) wordOffsets[block] << 6;
+      if (encodings[block] == FRAME_OF_REFERENCE) {
+         return (int) (mins[block] + unpack(bitPosition + (long) offset * width, width));
+      }
+      long value = mins[block];
+      for (int i = 1; i <= offset; i++) {
+         value += deltaBases[block] + unpack(bitPosition + (long) i * width, width);
+      }
+      return (int) value;
+   }
+
+   /**
+    * Decodes the whole column back into an array.
+    *
+    * @return the decoded values
+    */
+   public int[] decode() {
+      int[] values = new int[length];
+      for (int b = 0; b < blockCount(); b++) {
+         int start = b * BLOCK_SIZE;
+         int width = bitWidths[b];
+         long bitPosition = (long) wordOffsets[b] << 6;
+         long value = mins[b];
+         for (int i = 0; i < blockLength(b); i++, bitPosition += width) {
+            long packed = unpack(bitPosition, width);
+            if (encodings[b] == FRAME_OF_REFERENCE) {
+               values[start + i] = (int) (mins[b] + packed);
+            }
+            else {
+               if (i > 0) {
+                  value += deltaBases[b] + packed;
+               }
+               values[start + i] = (int) value;
+            }
+         }
+      }
+      return values;
+   }
+
+   /**
+    * Sums the values of a single block with offsets from {@code from} (inclusive) to {@code to} (exclusive).
+    * A fully covered block is taken from its header, a block of zero bit width is summed in closed form,
+    * everything else is decoded.
+    */
+   private long sumBlock(int block, int from, int to) {
+      if (from == 0 && to == blockLength(block)) {
+         return sums[block];
+      }
+      if (bitWidths[block] == 0) {
+         long count = to - from;
+         if (encodings[block] == FRAME_OF_REFERENCE) {
+            return count * mins[block];
+         }
+         // Arithmetic progression: min + i * deltaBase for i in [from, to)
+         return count * mins[block] + deltaBases[block] * (((long) from + to - 1) * count / 2);
+      }
+      return decodeSumBlock(block, from, to);
+   }
+
+   /**
+    * Fused decode-and-sum kernel: unpacks the values of a single block with offsets from {@code from} (inclusive)
+    * to {@code to} (exclusive) and adds them up without materializing the decoded values.
+    * The packed words are streamed through a 64-bit buffer, so each word of the payload is loaded only once.
+    */
+   private long decodeSumBlock(int block, int from, int to) {
+      int width = bitWidths[block];
+      long mask = (1L << width) - 1;
+      boolean delta = encodings[block] == DELTA;
+      // A DELTA block has to be decoded from its first value, the prefix is skipped only for the sum
+      int first = delta ? 0 : from;
+
+      long bitPosition = ((long) wordOffsets[block] << 6) + (long) first * width;
+      int word = (int) (bitPosition >>> 6);
+      int available = 64 - (int) (bitPosition & 63);
+      long buffer = width == 0 ? 0 : words[word] >>> (64 - available);
+
+      long sum = 0;
+      long value = mins[block];
+      long deltaBase = deltaBases[block];
+      for (int i = first; i < to; i++) {
+         long packed;
+         if (available >= width) {
+            packed = buffer & mask;
+            buffer >>>= width;
+            available -= width;
+         }
+         else {
+            // The value straddles two words: take the low bits from the buffer and the rest from the next word
+            long next = words[++word];
+            packed = (buffer | (next << available)) & mask;
+            buffer = next >>> (width - available);
+            available += 64 - width;
+         }
+
+         if (delta) {
+            if (i > 0) {
+               value += deltaBase + packed;
+            }
+            if (i >= from) {
+               sum += value;
+            }
+         }
+         else {
+            sum += packed;
+         }
+      }
+      return delta ? sum : sum + (long) (to - from) * mins[block];
+   }
+
+   /**
+    * Reads a single packed value of the given width starting at the given bit position of the payload.
+    */
+   private long unpack(long bitPosition, int width) {
+      if (width == 0) {
+         return 0;
+      }
+      int word = (int) (bitPosition >>> 6);
+      int shift = (int) (bitPosition & 63);
+      long packed = words[word] >>> shift;
+      if (shift + width > 64) {
+         packed |= words[word + 1] << (64 - shift);
+      }
+      return packed & ((1L << width) - 1);
+   }
+
+   private int blockLength(int block) {
+      return Math.min(BLOCK_SIZE, length - block * BLOCK_SIZE);
+   }
+
+   private void checkRange(int from, int to) {
+      if (from < 0 || to > length || from > to) {
+         throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is out of bounds for length " + length);
+      }
+   }
+}